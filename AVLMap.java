@@ -1,6 +1,8 @@
 import java.util.*;
 
-class AVLMap<Key extends Comparable<Key>, Value> implements Map<Key, Value> {
+class AVLMap<Key extends Comparable<Key>, Value> implements OrderedMap<Key, Value> {
+
+    private static final int MAX_HEIGHT = 64; // no AVL tree with an int size is deeper than this
 
     private AVLNode<Key, Value> root;
 
@@ -56,17 +58,65 @@ class AVLMap<Key extends Comparable<Key>, Value> implements Map<Key, Value> {
     public boolean isEmpty() { return root == null; }
 
     // Retrieves value associated with Key
-    public Value get(Key key) { return get(key, root); }
+    public Value get(Key key) {
+        AVLNode<Key, Value> n = root;
+        for (int depth = 0; n != null; depth++) {
+            checkDepth(depth);
+            int compare = key.compareTo(n.key);
+            if (compare < 0) {
+                n = n.left;
+            } else if (compare > 0) {
+                n = n.right;
+            } else {
+                return n.value;
+            }
+        }
+        return null;
+    }
 
-    public Value get(Key key, AVLNode<Key, Value> root) {
-        if (root == null) return null;
-        int compare = key.compareTo(root.key);
-        if (compare < 0) {
-            return get(key, root.left);
-        } else if (compare > 0) {
-            return get(key, root.right);
+    // Returns the largest key less than or equal to the given key, or null if there is none
+    public Key floor(Key key) {
+        Key floor = null;
+        AVLNode<Key, Value> n = root;
+        for (int depth = 0; n != null; depth++) {
+            checkDepth(depth);
+            int compare = key.compareTo(n.key);
+            if (compare < 0) {
+                n = n.left;
+            } else if (compare > 0) {
+                floor = n.key; // Candidate, but a larger one may be in the right subtree
+                n = n.right;
+            } else {
+                return n.key;
+            }
+        }
+        return floor;
+    }
+
+    // Returns the number of keys strictly less than the given key
+    public int rank(Key key) {
+        int rank = 0;
+        AVLNode<Key, Value> n = root;
+        for (int depth = 0; n != null; depth++) {
+            checkDepth(depth);
+            int compare = key.compareTo(n.key);
+            int sizeLeft = n.left == null ? 0 : n.left.size;
+            if (compare < 0) {
+                n = n.left;
+            } else if (compare > 0) {
+                rank += 1 + sizeLeft; // Node and its left subtree are all smaller
+                n = n.right;
+            } else {
+                return rank + sizeLeft;
+            }
         }
-        return root.value;
+        return rank;
+    }
+
+    // A balanced tree never gets this deep, so the tree is being read while another thread
+    // rotates it. Lets optimistic readers (see ConcurrentAVLMap) bail out instead of looping.
+    private static void checkDepth(int depth) {
+        if (depth > MAX_HEIGHT) throw new IllegalStateException("Tree modified during traversal.");
     }
 
     // Node for the AVL Map
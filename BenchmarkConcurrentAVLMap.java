@@ -0,0 +1,212 @@
+import java.io.File;
+import java.io.PrintWriter;
+import java.security.InvalidParameterException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public final class BenchmarkConcurrentAVLMap {
+    // Read percentages and thread counts to sweep over
+    private static final int[] READ_PERCENTS = { 99, 90, 50 };
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8 };
+
+    // Configurable number of keys in the map and operations performed by each thread
+    private static final int DEFAULT_NUM_KEYS = 100000;
+    private static final int OPS_PER_THREAD = 200000;
+
+    // Do not instantiate
+    private BenchmarkConcurrentAVLMap() { }
+
+    // AVLMap guarded by a ReentrantReadWriteLock, the baseline ConcurrentAVLMap is compared to
+    private static final class ReadWriteLockAVLMap<Key extends Comparable<Key>, Value>
+            implements OrderedMap<Key, Value> {
+        private final AVLMap<Key, Value> map = new AVLMap<Key, Value>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        public void put(Key key, Value value) {
+            lock.writeLock().lock();
+            try { map.put(key, value); } finally { lock.writeLock().unlock(); }
+        }
+
+        public void remove(Key key) {
+            lock.writeLock().lock();
+            try { map.remove(key); } finally { lock.writeLock().unlock(); }
+        }
+
+        public Value get(Key key) {
+            lock.readLock().lock();
+            try { return map.get(key); } finally { lock.readLock().unlock(); }
+        }
+
+        public Key floor(Key key) {
+            lock.readLock().lock();
+            try { return map.floor(key); } finally { lock.readLock().unlock(); }
+        }
+
+        public int rank(Key key) {
+            lock.readLock().lock();
+            try { return map.rank(key); } finally { lock.readLock().unlock(); }
+        }
+
+        public int size() {
+            lock.readLock().lock();
+            try { return map.size(); } finally { lock.readLock().unlock(); }
+        }
+
+        public boolean isEmpty() {
+            lock.readLock().lock();
+            try { return map.isEmpty(); } finally { lock.readLock().unlock(); }
+        }
+    }
+
+    // Each thread performs OPS_PER_THREAD random operations. Reads are split evenly between
+    // get, floor and rank, writes between put and remove, over keys in [0, 2 * numKeys).
+    private static void runOperations(OrderedMap<Integer, Integer> map, int readPercent, int numKeys) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int i = 0; i < OPS_PER_THREAD; i++) {
+            Integer key = r.nextInt(2 * numKeys);
+            if (r.nextInt(100) < readPercent) {
+                switch (i % 3) {
+                    case 0: map.get(key); break;
+                    case 1: map.floor(key); break;
+                    default: map.rank(key); break;
+                }
+            } else if ((i & 1) == 0) {
+                map.put(key, i);
+            } else {
+                map.remove(key);
+            }
+        }
+    }
+
+    // Return the throughput in operations per millisecond of the given mix and thread count.
+    private static double benchmark(String impl, int readPercent, int numThreads, int numKeys)
+            throws InterruptedException {
+        // Instantiate a map using an appropriate implementation
+        OrderedMap<Integer, Integer> map;
+        switch (impl) {
+            case "concurrent_avl_map":
+                map = new ConcurrentAVLMap<>();
+                break;
+            case "rw_lock_avl_map":
+                map = new ReadWriteLockAVLMap<>();
+                break;
+            default:
+                throw new InvalidParameterException(
+                        "Invalid map implementation chosen: " + impl);
+        }
+
+        // Fill half of the key space before running the timer.
+        for (int i = 0; i < 2 * numKeys; i += 2) {
+            map.put(i, i);
+        }
+
+        // Release all threads at once so they contend for the whole measurement.
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                runOperations(map, readPercent, numKeys);
+            });
+            threads[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        // Stop the writer thread of the concurrent map.
+        if (map instanceof ConcurrentAVLMap) {
+            ((ConcurrentAVLMap<Integer, Integer>) map).close();
+        }
+
+        return (double) numThreads * OPS_PER_THREAD / (elapsed / 1e6);
+    }
+
+    // Sweep every read/write mix across the thread counts and write one file per mix.
+    private static void benchmarkAndPrintResultsToFile(String impl, int numKeys) throws InterruptedException {
+        for (int readPercent : READ_PERCENTS) {
+            double[] throughputs = new double[THREAD_COUNTS.length];
+
+            for (int i = 0; i < THREAD_COUNTS.length; i++) {
+                // Run each benchmark 5 times
+                double total = 0;
+                for (int j = 0; j < 5; j++) {
+                    total += benchmark(impl, readPercent, THREAD_COUNTS[i], numKeys);
+                }
+                throughputs[i] = total / 5d;
+                System.out.println(impl + ": " + readPercent + "/" + (100 - readPercent) + " reads/writes, "
+                        + THREAD_COUNTS[i] + " threads, " + throughputs[i] + " ops/ms avg.");
+            }
+
+            // Create a file named appropriately to represent the benchmark.
+            File f = new File("results/" + impl + "_" + readPercent + "_reads.csv");
+            try {
+                // Create the "results/" directory if necessary.
+                f.getParentFile().mkdirs();
+
+                // Delete the file if it already exists (to write only new results).
+                if (f.exists()) {
+                    f.delete();
+                }
+
+                // Print the obtained data.
+                PrintWriter pw = new PrintWriter(f);
+                for (int i = 0; i < THREAD_COUNTS.length; i++) {
+                    pw.println(THREAD_COUNTS[i] + "," + throughputs[i]);
+                }
+
+                // Flush and close the writer.
+                pw.flush();
+                pw.close();
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Convenience function to print information to the user of benchmark tool.
+    private static void printUsage() {
+        System.out.println("Usage: BenchmarkConcurrentAVLMap <implementation> [number of keys]");
+        System.out.println("  where:");
+        System.out.println("    * <implementation> could be:");
+        System.out.println("       * concurrent_avl_map");
+        System.out.println("       * rw_lock_avl_map");
+    }
+
+    // The main entry point of the benchmark program.
+    public static void main(String[] args) {
+        // Ensure the implementation is passed; otherwise, print instructions.
+        if (args.length < 1) {
+            printUsage();
+            return;
+        }
+
+        // Run the benchmark suite.
+        try {
+            String impl = args[0];
+
+            int numKeys = DEFAULT_NUM_KEYS;
+            if (args.length == 2) {
+                numKeys = Integer.parseInt(args[1]);
+            }
+
+            benchmarkAndPrintResultsToFile(impl, numKeys);
+        } catch (InvalidParameterException ipe) {
+            System.out.println("Error: " + ipe.getMessage());
+            printUsage();
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -12,6 +12,9 @@ public final class BenchmarkHashMap {
 
     private static final Random r = new Random();
 
+    // Load factor reached by the last lookup benchmark, or NaN for maps without a table
+    private static double lastLoadFactor = Double.NaN;
+
     // Do not instantiate
     private BenchmarkHashMap() { }
 
@@ -67,35 +70,118 @@ public final class BenchmarkHashMap {
         return Utilities.elapsedTime();
     }
 
-    // General benchmark function that allows the caller to specify the type and
-    // the implementation of the benchmark, as well as the amount of data to use.
-    private static long benchmark(String impl, String type, int n) {
-        // Instantiate a map using an appropriate implementation
-        Map<String, Integer> map;
+    private static long benchmarkGet(Map<String, Integer> map, int n, boolean hit) {
+        // Generate the test data before running the timer.
+        String[] stringArray = Utilities.generateStrings(n);
+        Integer[] integerArray = Utilities.generateIntegers(n);
+
+        // Put the entries into the map before starting timer for lookups
+        for (int i = 0; i < n; i++) {
+            map.put(stringArray[i], integerArray[i]);
+        }
+
+        if (map.size() != n) {
+            System.out.println("Debug: something is wrong.");
+        }
+        lastLoadFactor = loadFactor(map);
+
+        // Look up the inserted keys for hits. For misses, derive a key from each inserted one
+        // and extend it until it is not in the map, so no miss key can hit.
+        String[] lookupArray = stringArray;
+        if (!hit) {
+            lookupArray = new String[n];
+            for (int i = 0; i < n; i++) {
+                String key = stringArray[i] + "#";
+                while (map.get(key) != null) key += "#";
+                lookupArray[i] = key;
+            }
+        }
+        int found = 0;
+
+        // Start the timer once the keys are ready to be looked up
+        Utilities.startTimer();
+
+        for (int i = 0; i < n; i++) {
+            if (map.get(lookupArray[i]) != null) found++;
+        }
+
+        long elapsed = Utilities.elapsedTime();
+        int unexpected = hit ? n - found : found;
+        if (unexpected != 0) {
+            System.out.println("Debug: something is wrong, " + unexpected + " lookups unexpectedly "
+                    + (hit ? "missed." : "hit."));
+        }
+
+        // Return the milliseconds it took to look up all keys.
+        return elapsed;
+    }
+
+    // Return the load factor of maps backed by a table, or NaN for the others.
+    private static double loadFactor(Map<String, Integer> map) {
+        if (map instanceof SwissMap) return ((SwissMap<String, Integer>) map).loadFactor();
+        if (map instanceof LinearProbingMap) return ((LinearProbingMap<String, Integer>) map).loadFactor();
+        if (map instanceof HashMap) return ((HashMap<String, Integer>) map).loadFactor();
+        return Double.NaN;
+    }
+
+    // Return the power of 2 table size of at least n slots.
+    private static int tableSize(int n) {
+        return Math.max(16, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+    }
+
+    // Instantiate a map using an appropriate implementation. Shared with TraceReplay.
+    static Map<String, Integer> newMap(String impl) {
+        return newMap(impl, 0);
+    }
+
+    // Instantiate a map, giving the open addressing maps a table of at least capacity slots.
+    static Map<String, Integer> newMap(String impl, int capacity) {
         switch (impl) {
             case "linked_map":
-                map = new LinkedMap<>();
-                break;
+                return new LinkedMap<>();
             case "hash_map":
-                map = new HashMap<>();
-                break;
+                return new HashMap<>();
             case "bst_map":
-                map = new BSTMap<>();
-                break;
+                return new BSTMap<>();
+            case "avl_map":
+                return new AVLMap<>();
+            case "concurrent_avl_map":
+                return new ConcurrentAVLMap<>();
+            case "linear_probing_map":
+                return new LinearProbingMap<>(capacity);
+            case "swiss_map":
+                return new SwissMap<>(capacity);
             default:
                 throw new InvalidParameterException(
                         "Invalid map implementation chosen: " + impl);
         }
+    }
+
+    // General benchmark function that allows the caller to specify the type and
+    // the implementation of the benchmark, as well as the amount of data to use.
+    private static long benchmark(String impl, String type, int n, int capacity) {
+        Map<String, Integer> map = newMap(impl, capacity);
 
         // Run the appropriate benchmark.
-        switch (type) {
-            case "put":
-                return benchmarkPut(map, n);
-            case "remove":
-                return benchmarkRemove(map, n);
-            default:
-                throw new InvalidParameterException(
-                        "Invalid benchmark type chosen: " + type);
+        try {
+            switch (type) {
+                case "put":
+                    return benchmarkPut(map, n);
+                case "remove":
+                    return benchmarkRemove(map, n);
+                case "get":
+                    return benchmarkGet(map, n, true);
+                case "get_miss":
+                    return benchmarkGet(map, n, false);
+                default:
+                    throw new InvalidParameterException(
+                            "Invalid benchmark type chosen: " + type);
+            }
+        } finally {
+            // Stop the writer thread of the concurrent map.
+            if (map instanceof ConcurrentAVLMap) {
+                ((ConcurrentAVLMap<String, Integer>) map).close();
+            }
         }
     }
 
@@ -103,6 +189,8 @@ public final class BenchmarkHashMap {
     private static void benchmarkAndPrintResultsToFile(String impl,String type, int incrementSize) {
         int[] sizes = new int[NUM_INCREMENTS];
         double[] times = new double[NUM_INCREMENTS];
+        double[] loads = new double[NUM_INCREMENTS];
+        boolean lookup = type.equals("get") || type.equals("get_miss");
 
         // Perform the tests for each increment (i.e. several increasingly larger
         // amounts of data).
@@ -110,16 +198,26 @@ public final class BenchmarkHashMap {
             // Calculate the amount of data for this increment.
             int n = i * incrementSize;
 
+            // Lookups are compared at the 7/8 maximum load of the open addressing maps, so
+            // their table doubles each increment up to the largest size and is filled to 7/8.
+            int capacity = 0;
+            if (lookup) {
+                capacity = Math.max(16, tableSize((NUM_INCREMENTS - 1) * incrementSize) >> (NUM_INCREMENTS - 1 - i));
+                n = capacity / 8 * 7;
+            }
+
             // Run each benchmark 10 times
             long total_time_elapsed = 0;
             for (int j = 0; j < 10; j++) {
-                total_time_elapsed += benchmark(impl, type, n);
+                total_time_elapsed += benchmark(impl, type, n, capacity);
             }
 
             // Record the size of data set used and the amount of time it took.
             sizes[i] = n;
             times[i] = (total_time_elapsed / 10d);
-            System.out.println(impl + ": " + n + " items, " + times[i] + " ms avg.");
+            loads[i] = lastLoadFactor;
+            System.out.println(impl + ": " + n + " items, " + times[i] + " ms avg."
+                    + (lookup ? " load factor " + loads[i] : ""));
         }
 
         // Create a file named appropriately to represent the benchmark.
@@ -138,7 +236,7 @@ public final class BenchmarkHashMap {
 
             // Print the obtained data.
             for (int i = 0; i < NUM_INCREMENTS; i++) {
-                pw.println(sizes[i] + "," + times[i]);
+                pw.println(sizes[i] + "," + times[i] + (lookup ? "," + loads[i] : ""));
             }
 
             // Flush and close the writer.
@@ -159,9 +257,15 @@ public final class BenchmarkHashMap {
         System.out.println("       * linked_map");
         System.out.println("       * hash_map");
         System.out.println("       * bst_map");
+        System.out.println("       * avl_map");
+        System.out.println("       * concurrent_avl_map");
+        System.out.println("       * linear_probing_map");
+        System.out.println("       * swiss_map");
         System.out.println("    * <benchmark> could be:");
         System.out.println("       * put");
         System.out.println("       * remove");
+        System.out.println("       * get");
+        System.out.println("       * get_miss");
     }
 
     // The main entry point of the benchmark program.
@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+// Thread-safe AVLMap for read-mostly workloads. Reads traverse the tree under a StampedLock
+// optimistic read and only take the read lock if a write happened meanwhile, so readers do not
+// write to a shared lock word. Writers hand their mutation to a single writer thread which
+// applies everything queued so far under one write lock, and wait until it has been applied.
+class ConcurrentAVLMap<Key extends Comparable<Key>, Value> implements OrderedMap<Key, Value>, AutoCloseable {
+
+    private static final int MAX_BATCH = 256; // most mutations applied under one write lock
+
+    private final AVLMap<Key, Value> map = new AVLMap<Key, Value>();
+
+    private final StampedLock lock = new StampedLock();
+
+    private final LinkedBlockingQueue<Mutation<Key, Value>> queue = new LinkedBlockingQueue<Mutation<Key, Value>>();
+
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    public ConcurrentAVLMap() {
+        writer = new Thread(this::applyMutations, "ConcurrentAVLMap-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // A put or remove waiting to be applied by the writer thread
+    private static class Mutation<Key, Value> {
+        final Key key;
+        final Value value;
+        final boolean remove;
+        final Thread waiter = Thread.currentThread();
+        Throwable failure;
+        volatile boolean done;
+
+        Mutation(Key key, Value value, boolean remove) {
+            this.key = key;
+            this.value = value;
+            this.remove = remove;
+        }
+    }
+
+    // Body of the writer thread: apply queued mutations in batches until closed and drained
+    private void applyMutations() {
+        ArrayList<Mutation<Key, Value>> batch = new ArrayList<Mutation<Key, Value>>(MAX_BATCH);
+        while (true) {
+            Mutation<Key, Value> first;
+            try {
+                first = closed ? queue.poll() : queue.take();
+            } catch (InterruptedException e) { // close() was called, finish what is queued
+                first = queue.poll();
+            }
+            if (first == null) return;
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            int applied = 0;
+            try {
+                long stamp = lock.writeLock();
+                try {
+                    for (; applied < batch.size(); applied++) {
+                        Mutation<Key, Value> m = batch.get(applied);
+                        try {
+                            if (m.remove) map.remove(m.key);
+                            else map.put(m.key, m.value);
+                        } catch (Throwable e) {
+                            m.failure = e; // rethrown in the thread that asked for the mutation
+                        }
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            } catch (Throwable e) { // the writer thread dies, so fail what it did not get to
+                for (int i = applied; i < batch.size(); i++) {
+                    if (batch.get(i).failure == null) batch.get(i).failure = e;
+                }
+                throw e;
+            } finally {
+                // Always release the waiters, they were already drained from the queue
+                for (Mutation<Key, Value> m : batch) {
+                    m.done = true;
+                    LockSupport.unpark(m.waiter);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // Queue the mutation and block until the writer thread has applied it
+    private void submit(Mutation<Key, Value> m) {
+        if (closed) throw new IllegalStateException("Map is closed.");
+        queue.add(m);
+        // parkNanos returns at once while the interrupt flag is set, so clear it while waiting
+        // to avoid spinning and restore it once the mutation is done
+        boolean interrupted = false;
+        try {
+            while (!m.done) {
+                // The writer exits once closed and drained, so a mutation queued after that is lost
+                if (!writer.isAlive() && queue.remove(m)) throw new IllegalStateException("Map is closed.");
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                if (Thread.interrupted()) interrupted = true;
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        if (m.failure instanceof RuntimeException) throw (RuntimeException) m.failure;
+        if (m.failure instanceof Error) throw (Error) m.failure;
+        if (m.failure != null) throw new IllegalStateException("Mutation failed.", m.failure);
+    }
+
+    // Run reader under an optimistic read, falling back to the read lock if a write interfered
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // Saw a half-applied write; retry under the read lock below
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Put key value pair into map
+    public void put(Key key, Value value) { submit(new Mutation<Key, Value>(key, value, false)); }
+
+    // Removes the entry with given key if it is in the map
+    public void remove(Key key) { submit(new Mutation<Key, Value>(key, null, true)); }
+
+    // Retrieves value associated with Key
+    public Value get(Key key) { return read(() -> map.get(key)); }
+
+    // Returns the largest key less than or equal to the given key, or null if there is none
+    public Key floor(Key key) { return read(() -> map.floor(key)); }
+
+    // Returns the number of keys strictly less than the given key
+    public int rank(Key key) { return read(() -> map.rank(key)); }
+
+    // Returns the number of elements in the map
+    public int size() { return read(map::size); }
+
+    // Returns true if there are no elements in the map
+    public boolean isEmpty() { return read(map::isEmpty); }
+
+    // Stop the writer thread once every queued mutation has been applied
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
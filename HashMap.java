@@ -85,8 +85,15 @@ class HashMap<Key, Value> implements Map<Key, Value>, Iterable<LinkedMap> {
 
     // Remove and return the value associated with the key.
     public void remove(Key key) {
-        buckets[hash(key)].remove(key);
-        N--;
+        LinkedMap<Key, Value> bucket = buckets[hash(key)];
+        int before = bucket.size();
+        bucket.remove(key);
+        N -= before - bucket.size(); // only count the entry if the key was there
+    }
+
+    // Return the fraction of the table in use.
+    public double loadFactor() {
+        return (double) N / M;
     }
 
     // Return the number of elements in the map.
@@ -0,0 +1,97 @@
+class LinearProbingMap<Key, Value> implements Map<Key, Value> {
+
+    private static final int MAX_LOAD_NUMERATOR = 7; // same 0.875 load factor as SwissMap for comparison
+    private static final int MAX_LOAD_DENOMINATOR = 8;
+
+    private int N; // number of entries
+
+    private int M; // table size, a power of 2
+
+    private Object[] keys;
+
+    private Object[] values;
+
+    public LinearProbingMap() {
+        this(16);
+    }
+
+    public LinearProbingMap(int capacity) {
+        M = 16;
+        while (M < capacity) M <<= 1; // round up to a power of 2
+        keys = new Object[M];
+        values = new Object[M];
+    }
+
+    private int hash(Object key) { // Scramble the hashCode and mask it to the table size
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (M - 1);
+    }
+
+    private void resize(int capacity) {
+        LinearProbingMap<Key, Value> t = new LinearProbingMap<Key, Value>(capacity);
+        for (int i = 0; i < M; i++) {
+            if (keys[i] != null) t.put((Key) keys[i], (Value) values[i]);
+        }
+        keys = t.keys;
+        values = t.values;
+        M = t.M;
+    }
+
+    // Put key value pair into map, replacing the value if the key already exists
+    public void put(Key key, Value value) {
+        if ((long) (N + 1) * MAX_LOAD_DENOMINATOR > (long) M * MAX_LOAD_NUMERATOR) resize(M << 1);
+        int i;
+        for (i = hash(key); keys[i] != null; i = (i + 1) & (M - 1)) {
+            if (key.equals(keys[i])) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        N++;
+    }
+
+    // Retrieve the value associated with the key.
+    public Value get(Key key) {
+        for (int i = hash(key); keys[i] != null; i = (i + 1) & (M - 1)) {
+            if (key.equals(keys[i])) return (Value) values[i];
+        }
+        return null;
+    }
+
+    // Remove the entry with the given key if it is in the map.
+    public void remove(Key key) {
+        int i = hash(key);
+        while (keys[i] != null && !key.equals(keys[i])) i = (i + 1) & (M - 1);
+        if (keys[i] == null) return; // key was not found
+        keys[i] = null;
+        values[i] = null;
+        N--;
+        // Reinsert the rest of the cluster so no later key is cut off from its probe sequence
+        for (i = (i + 1) & (M - 1); keys[i] != null; i = (i + 1) & (M - 1)) {
+            Key k = (Key) keys[i];
+            Value v = (Value) values[i];
+            keys[i] = null;
+            values[i] = null;
+            N--;
+            put(k, v);
+        }
+    }
+
+    // Return the fraction of the table in use.
+    public double loadFactor() {
+        return (double) N / M;
+    }
+
+    // Return the number of elements in the map.
+    public int size() {
+        return N;
+    }
+
+    // Return true if there are no elements in the map.
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+}
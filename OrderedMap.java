@@ -0,0 +1,9 @@
+interface OrderedMap<Key extends Comparable<Key>, Value> extends Map<Key, Value> {
+
+    // Returns the largest key less than or equal to the given key, or null if there is none
+    Key floor(Key key);
+
+    // Returns the number of keys strictly less than the given key
+    int rank(Key key);
+
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+class SwissMap<Key, Value> implements Map<Key, Value> {
+
+    private static final int GROUP_SIZE = 16; // number of slots probed at once
+
+    private static final int MAX_LOAD_NUMERATOR = 7; // load factor constant of 7/8 = 0.875
+    private static final int MAX_LOAD_DENOMINATOR = 8;
+
+    private static final byte EMPTY = (byte) 0x80; // control byte of a slot that was never used
+    private static final byte DELETED = (byte) 0xFE; // control byte of a removed slot (tombstone)
+    // A full slot stores the low 7 bits of the hash (0x00 - 0x7F) as its control byte
+
+    private static final long LSB = 0x0101010101010101L; // lowest bit of each byte in a word
+    private static final long MSB = 0x8080808080808080L; // highest bit of each byte in a word
+
+    private int N; // number of entries
+
+    private int M; // number of slots, a power of 2 that is a multiple of GROUP_SIZE
+
+    private int tombstones; // number of DELETED slots
+
+    private long[] control; // control bytes, packed 8 per word so a group is 2 words
+
+    private Object[] keys;
+
+    private Object[] values;
+
+    public SwissMap() {
+        this(GROUP_SIZE);
+    }
+
+    public SwissMap(int capacity) {
+        M = GROUP_SIZE;
+        while (M < capacity) M <<= 1; // round up to a power of 2
+        allocate(M);
+    }
+
+    private void allocate(int M) {
+        this.M = M;
+        control = new long[M >>> 3];
+        Arrays.fill(control, MSB); // every control byte starts as EMPTY
+        keys = new Object[M];
+        values = new Object[M];
+        tombstones = 0;
+    }
+
+    private static int hash(Object key) { // Scramble the hashCode so both halves are well distributed
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Bytes of word equal to tag become 0x80, others become 0x00. May report a false positive
+    // next to a true match, which is harmless since the key is compared afterwards.
+    private static long matchTag(long word, long tag) {
+        long x = word ^ tag;
+        return (x - LSB) & ~x & MSB;
+    }
+
+    // Bytes of word that are EMPTY become 0x80
+    private static long matchEmpty(long word) {
+        return word & (~word << 6) & MSB;
+    }
+
+    // Bytes of word that are EMPTY or DELETED become 0x80
+    private static long matchEmptyOrDeleted(long word) {
+        return word & ~(word << 7) & MSB;
+    }
+
+    // Index of the lowest matching byte within a word
+    private static int firstMatch(long match) {
+        return Long.numberOfTrailingZeros(match) >>> 3;
+    }
+
+    private void setControl(int slot, byte b) {
+        int word = slot >>> 3;
+        int shift = (slot & 7) << 3;
+        control[word] = (control[word] & ~(0xFFL << shift)) | ((b & 0xFFL) << shift);
+    }
+
+    // Return the slot holding key, or -1 if it is not in the map
+    private int find(Object key) {
+        int h = hash(key);
+        long tag = LSB * (h & 0x7F);
+        int mask = M / GROUP_SIZE - 1;
+        int group = (h >>> 7) & mask;
+        for (int step = 1; ; step++) { // triangular probing visits every group
+            int word = group << 1;
+            for (int w = word; w < word + 2; w++) {
+                for (long m = matchTag(control[w], tag); m != 0; m &= m - 1) {
+                    int slot = (w << 3) + firstMatch(m);
+                    if (key.equals(keys[slot])) return slot;
+                }
+            }
+            // A group with an EMPTY slot ends the probe sequence, so most misses stop here
+            if ((matchEmpty(control[word]) | matchEmpty(control[word + 1])) != 0) return -1;
+            group = (group + step) & mask;
+        }
+    }
+
+    // Return the first EMPTY or DELETED slot in the probe sequence of hash h
+    private int findInsertSlot(int h) {
+        int mask = M / GROUP_SIZE - 1;
+        int group = (h >>> 7) & mask;
+        for (int step = 1; ; step++) {
+            int word = group << 1;
+            for (int w = word; w < word + 2; w++) {
+                long m = matchEmptyOrDeleted(control[w]);
+                if (m != 0) return (w << 3) + firstMatch(m);
+            }
+            group = (group + step) & mask;
+        }
+    }
+
+    // Rehash every entry into a table with the given number of slots, dropping tombstones
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int h = hash(oldKeys[i]);
+            int slot = findInsertSlot(h);
+            setControl(slot, (byte) (h & 0x7F));
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // Put key value pair into map, replacing the value if the key already exists
+    public void put(Key key, Value value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if ((long) (N + tombstones + 1) * MAX_LOAD_DENOMINATOR > (long) M * MAX_LOAD_NUMERATOR) {
+            // Double when mostly full of entries, otherwise rehash in place to clear tombstones
+            resize((long) (N + 1) * MAX_LOAD_DENOMINATOR * 2 > (long) M * MAX_LOAD_NUMERATOR ? M << 1 : M);
+        }
+        int h = hash(key);
+        slot = findInsertSlot(h);
+        if (isDeleted(slot)) tombstones--;
+        setControl(slot, (byte) (h & 0x7F));
+        keys[slot] = key;
+        values[slot] = value;
+        N++;
+    }
+
+    private boolean isDeleted(int slot) {
+        return (byte) (control[slot >>> 3] >>> ((slot & 7) << 3)) == DELETED;
+    }
+
+    // Retrieve the value associated with the key.
+    public Value get(Key key) {
+        int slot = find(key);
+        return slot < 0 ? null : (Value) values[slot];
+    }
+
+    // Remove the entry with the given key if it is in the map.
+    public void remove(Key key) {
+        int slot = find(key);
+        if (slot < 0) return;
+        int word = (slot / GROUP_SIZE) << 1;
+        // If the group still has an EMPTY slot no probe sequence ever continued past it,
+        // so the slot can become EMPTY again instead of leaving a tombstone
+        if ((matchEmpty(control[word]) | matchEmpty(control[word + 1])) != 0) {
+            setControl(slot, EMPTY);
+        } else {
+            setControl(slot, DELETED);
+            tombstones++;
+        }
+        keys[slot] = null;
+        values[slot] = null;
+        N--;
+    }
+
+    // Return the fraction of the table in use.
+    public double loadFactor() {
+        return (double) N / M;
+    }
+
+    // Return the number of elements in the map.
+    public int size() {
+        return N;
+    }
+
+    // Return true if there are no elements in the map.
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+}
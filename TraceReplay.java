@@ -0,0 +1,417 @@
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+public final class TraceReplay {
+    // Latency percentiles to report
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    // Values are not recorded, so every put stores this one and map memory excludes values
+    private static final Integer VALUE = 0;
+
+    // Do not instantiate
+    private TraceReplay() { }
+
+    // Fixed-size latency histogram. Values below 16 ns get a bucket each; above that every
+    // power of 2 is split into 16 buckets, so a reported percentile is at most 1/16 too high.
+    private static final class Histogram {
+        private static final int SUB_BUCKETS = 16;
+        private static final int SUB_BITS = 4;
+
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+        private long total;
+        private long max;
+
+        private static int index(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) Math.max(0, nanos);
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos); // at least SUB_BITS
+            int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Largest value that falls in the bucket
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int shift = index / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        void record(long nanos) {
+            counts[index(nanos)]++;
+            total++;
+            if (nanos > max) max = nanos;
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        long percentile(double percent) {
+            long rank = (long) Math.ceil(percent / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+    }
+
+    // Memory-map the trace and check its header. Traces are limited to 2 GB, the most a
+    // single mapping can hold.
+    private static MappedByteBuffer mapTrace(Path trace) throws Exception {
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new InvalidParameterException("Trace larger than 2 GB: " + trace);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 5 || buffer.getInt() != TracingMap.MAGIC || buffer.get() != TracingMap.VERSION) {
+                throw new InvalidParameterException("Not a map trace: " + trace);
+            }
+            return buffer;
+        }
+    }
+
+    // Read an unsigned LEB128 varint written by TracingMap
+    private static int getVarint(ByteBuffer b) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte x = b.get();
+            v |= (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+    }
+
+    // Read the length and UTF-8 bytes of a key written by DEFINE or an INLINE op
+    private static String getKey(ByteBuffer b) {
+        byte[] bytes = new byte[getVarint(b)];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Skip over the record whose op byte was just read.
+    private static void skipRecord(ByteBuffer b, byte op) {
+        if (op == TracingMap.DEFINE || (op & TracingMap.INLINE) != 0) {
+            int length = getVarint(b);
+            b.position(b.position() + length);
+        } else {
+            getVarint(b);
+        }
+    }
+
+    // Keys of the trace, decoded once before the replay so it never decodes a key it keeps.
+    // DEFINE keys are indexed by id. INLINE keys have no id, so their text maps to one shared
+    // String; replay decodes the text again to look it up.
+    private static final class Keys {
+        String[] defined;
+        final java.util.HashMap<String, String> inline = new java.util.HashMap<String, String>();
+        long ops;
+    }
+
+    // What one replay thread measured
+    private static final class Result {
+        final Histogram latencies = new Histogram();
+        long hits; // gets that found a value
+        long misses; // gets that did not
+        long rejectedPuts; // puts of an existing key refused by the map (LinkedMap)
+
+        void add(Result other) {
+            latencies.add(other.latencies);
+            hits += other.hits;
+            misses += other.misses;
+            rejectedPuts += other.rejectedPuts;
+        }
+    }
+
+    // Decode every distinct key of the trace and count its operations.
+    private static Keys readKeys(ByteBuffer trace) {
+        Keys keys = new Keys();
+        ArrayList<String> defined = new ArrayList<>();
+        while (trace.hasRemaining()) {
+            byte op = trace.get();
+            if (op == TracingMap.DEFINE) {
+                defined.add(getKey(trace));
+                continue;
+            }
+            if ((op & TracingMap.INLINE) != 0) {
+                String key = getKey(trace);
+                keys.inline.putIfAbsent(key, key);
+            } else {
+                getVarint(trace);
+            }
+            keys.ops++;
+        }
+        keys.defined = defined.toArray(new String[0]);
+        return keys;
+    }
+
+    // Return the thread that replays the operation record at the current position, whose op
+    // byte was just read, and move past it. All operations on a key go to the same thread.
+    private static int owner(ByteBuffer trace, byte op, int numThreads) {
+        if ((op & TracingMap.INLINE) != 0) {
+            return (getKey(trace).hashCode() & 0x7fffffff) % numThreads;
+        }
+        return getVarint(trace) % numThreads;
+    }
+
+    // Route every operation to a thread by its key, so each key sees its operations in trace
+    // order. Returns the positions of the records each thread replays, which costs 4 bytes
+    // per operation on top of the mapped trace.
+    private static int[][] routeTrace(ByteBuffer trace, int numThreads) {
+        int[] counts = new int[numThreads];
+        ByteBuffer b = trace.duplicate();
+        while (b.hasRemaining()) {
+            byte op = b.get();
+            if (op == TracingMap.DEFINE) skipRecord(b, op);
+            else counts[owner(b, op, numThreads)]++;
+        }
+
+        int[][] offsets = new int[numThreads][];
+        for (int t = 0; t < numThreads; t++) offsets[t] = new int[counts[t]];
+        int[] filled = new int[numThreads];
+        b = trace.duplicate();
+        while (b.hasRemaining()) {
+            int position = b.position();
+            byte op = b.get();
+            if (op == TracingMap.DEFINE) {
+                skipRecord(b, op);
+            } else {
+                int t = owner(b, op, numThreads);
+                offsets[t][filled[t]++] = position;
+            }
+        }
+        return offsets;
+    }
+
+    // Perform the operation record at the current position, whose op byte was just read,
+    // and record its latency.
+    private static void replayRecord(ByteBuffer trace, byte op, Keys keys, Map<String, Integer> map,
+                                     Result result) {
+        String key;
+        if ((op & TracingMap.INLINE) != 0) { // Key past the dictionary cap of the recorder
+            key = keys.inline.get(getKey(trace));
+            op &= ~TracingMap.INLINE;
+        } else {
+            key = keys.defined[getVarint(trace)];
+        }
+
+        long start = System.nanoTime();
+        switch (op) {
+            case TracingMap.PUT:
+                try {
+                    map.put(key, VALUE);
+                } catch (IllegalStateException e) { // LinkedMap refuses a put of an existing key
+                    result.rejectedPuts++;
+                }
+                break;
+            case TracingMap.GET:
+                if (map.get(key) != null) result.hits++;
+                else result.misses++;
+                break;
+            case TracingMap.REMOVE:
+                map.remove(key);
+                break;
+            default:
+                throw new IllegalStateException("Corrupt trace, unknown op: " + op);
+        }
+        result.latencies.record(System.nanoTime() - start);
+    }
+
+    // Replay the records at the given positions, or stream the whole trace if there are none.
+    private static void replay(ByteBuffer trace, int[] offsets, Keys keys, Map<String, Integer> map,
+                               Result result) {
+        if (offsets == null) {
+            while (trace.hasRemaining()) {
+                byte op = trace.get();
+                if (op == TracingMap.DEFINE) skipRecord(trace, op); // Already decoded
+                else replayRecord(trace, op, keys, map, result);
+            }
+            return;
+        }
+        for (int offset : offsets) {
+            trace.position(offset);
+            replayRecord(trace, trace.get(), keys, map, result);
+        }
+    }
+
+    // Heap in use after a full collection, in bytes.
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Replay the trace against the implementation, print the results and write them to file.
+    private static void replayAndPrintResultsToFile(Path tracePath, String impl, int numThreads) throws Exception {
+        MappedByteBuffer trace = mapTrace(tracePath);
+
+        // Decode every key up front and measure it on its own, so map memory below never
+        // includes key Strings, however many keys the recorder wrote inline.
+        long beforeKeys = usedMemory();
+        Keys keys = readKeys(trace.duplicate());
+        long keyMemory = usedMemory() - beforeKeys;
+
+        Map<String, Integer> map = BenchmarkHashMap.newMap(impl);
+        if (numThreads > 1 && !(map instanceof ConcurrentAVLMap)) {
+            throw new InvalidParameterException(impl + " is not thread-safe, replay it with 1 thread");
+        }
+        int[][] offsets = numThreads > 1 ? routeTrace(trace, numThreads) : null;
+
+        // Each thread replays the operations on its own keys; start them all at once.
+        CountDownLatch start = new CountDownLatch(1);
+        Result[] results = new Result[numThreads];
+        Throwable[] failures = new Throwable[numThreads];
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int thread = t;
+            results[t] = new Result();
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    replay(trace.duplicate(), offsets == null ? null : offsets[thread], keys, map, results[thread]);
+                } catch (Throwable e) {
+                    failures[thread] = e;
+                }
+            });
+            threads[t].start();
+        }
+
+        // LinkedMap.remove prints every key it removes, so discard console output while
+        // replaying; linked_map and hash_map still pay for formatting those lines.
+        PrintStream out = System.out;
+        long baseline = usedMemory();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            System.setOut(out);
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        for (Throwable failure : failures) {
+            if (failure != null) throw new IllegalStateException("Replay failed: " + failure, failure);
+        }
+
+        // Memory the map holds once the replay is done, without the keys measured above.
+        long mapMemory = usedMemory() - baseline;
+        int size = map.size();
+
+        // Stop the writer thread of the concurrent map.
+        if (map instanceof ConcurrentAVLMap) {
+            ((ConcurrentAVLMap<String, Integer>) map).close();
+        }
+
+        // Merge the results of all threads to compute percentiles.
+        Result all = new Result();
+        for (Result result : results) all.add(result);
+        long total = all.latencies.total;
+
+        double throughput = total / (elapsed / 1e6);
+        long[] percentiles = new long[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles[i] = all.latencies.percentile(PERCENTILES[i]);
+        }
+        long max = all.latencies.max;
+
+        System.out.println(impl + ": " + total + " ops, " + (keys.defined.length + keys.inline.size()) + " keys, "
+                + numThreads + " threads, " + throughput + " ops/ms, final size " + size);
+        System.out.println("  gets: " + all.hits + " hits, " + all.misses + " misses; "
+                + all.rejectedPuts + " rejected puts");
+        StringBuilder sb = new StringBuilder("  latency ns:");
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double p = PERCENTILES[i];
+            sb.append(" p").append(p % 1 == 0 ? String.valueOf((int) p) : String.valueOf(p)).append(" ").append(percentiles[i]);
+        }
+        System.out.println(sb + " max " + max);
+        System.out.println("  memory: map " + mapMemory + " bytes, keys " + keyMemory + " bytes");
+        if (impl.equals("linked_map") || impl.equals("hash_map")) {
+            System.out.println("  note: LinkedMap.remove formats every removed key, which inflates remove latency");
+        }
+
+        // Create a file named appropriately to represent the replay.
+        String name = tracePath.getFileName().toString();
+        File f = new File("results/" + impl + "_replay_" + name + "_" + numThreads + ".csv");
+        try {
+            // Create the "results/" directory if necessary.
+            f.getParentFile().mkdirs();
+
+            // Delete the file if it already exists (to write only new results).
+            if (f.exists()) {
+                f.delete();
+            }
+
+            // Print ops, throughput, the percentiles, max latency, get hits and misses,
+            // rejected puts, map memory and key memory on one line.
+            PrintWriter pw = new PrintWriter(f);
+            pw.print(total + "," + throughput);
+            for (long p : percentiles) {
+                pw.print("," + p);
+            }
+            pw.println("," + max + "," + all.hits + "," + all.misses + "," + all.rejectedPuts
+                    + "," + mapMemory + "," + keyMemory);
+
+            // Flush and close the writer.
+            pw.flush();
+            pw.close();
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Convenience function to print information to the user of replay tool.
+    private static void printUsage() {
+        System.out.println("Usage: TraceReplay <trace file> <implementation> [threads]");
+        System.out.println("  where:");
+        System.out.println("    * <trace file> was recorded with TracingMap");
+        System.out.println("    * <implementation> is any implementation of BenchmarkHashMap");
+        System.out.println("    * [threads] defaults to 1, more needs concurrent_avl_map. Each key is");
+        System.out.println("      replayed by one thread in trace order, but operations on different");
+        System.out.println("      keys may interleave differently than recorded");
+    }
+
+    // The main entry point of the replay program.
+    public static void main(String[] args) {
+        // Ensure there are two arguments passed; otherwise, print instructions.
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+
+        try {
+            Path trace = Paths.get(args[0]);
+            String impl = args[1];
+
+            int numThreads = 1;
+            if (args.length == 3) {
+                numThreads = Integer.parseInt(args[2]);
+            }
+
+            replayAndPrintResultsToFile(trace, impl, numThreads);
+        } catch (InvalidParameterException ipe) {
+            System.out.println("Error: " + ipe.getMessage());
+            printUsage();
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Wraps any Map and records every put, get and remove to a binary trace file that TraceReplay
+// can run against other implementations. Keys are recorded by their toString() and replayed as
+// String keys; values are not recorded.
+//
+// Trace format, after the MAGIC int and VERSION byte, is a stream of records that start with
+// an op byte. DEFINE is followed by a varint length and the UTF-8 bytes of a key seen for the
+// first time, which gets the next key id. PUT, GET and REMOVE are followed by a varint key id,
+// so a repeated operation costs two or three bytes. Only the first maxKeys distinct keys get an
+// id, which bounds the memory of the wrapper; operations on later keys set the INLINE bit of the
+// op and carry the key bytes like DEFINE does.
+//
+// Every traced call takes this wrapper's monitor for the few nanoseconds it needs to append its
+// record, but not while calling the map. Tracing a thread-safe map from many threads therefore
+// serializes the appends, which can cap the throughput of a heavily contended map.
+class TracingMap<Key, Value> implements Map<Key, Value>, AutoCloseable {
+
+    static final int MAGIC = 0x4D545243; // "MTRC"
+    static final byte VERSION = 2;
+
+    static final byte DEFINE = 0;
+    static final byte PUT = 1;
+    static final byte GET = 2;
+    static final byte REMOVE = 3;
+    static final byte INLINE = 0x10; // flag on PUT, GET and REMOVE for a key without an id
+
+    static final int DEFAULT_MAX_KEYS = 1 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_RECORD_SIZE = 6; // op byte and a 5 byte varint
+
+    private final Map<Key, Value> map;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final java.util.HashMap<Key, Integer> ids = new java.util.HashMap<Key, Integer>(); // key to key id
+
+    private final int maxKeys; // most keys given an id
+
+    public TracingMap(Map<Key, Value> map, Path trace) throws IOException {
+        this(map, trace, DEFAULT_MAX_KEYS);
+    }
+
+    public TracingMap(Map<Key, Value> map, Path trace, int maxKeys) throws IOException {
+        this.map = map;
+        this.maxKeys = maxKeys;
+        channel = FileChannel.open(trace, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC).put(VERSION);
+    }
+
+    public void put(Key key, Value value) {
+        record(PUT, key);
+        map.put(key, value);
+    }
+
+    public Value get(Key key) {
+        record(GET, key);
+        return map.get(key);
+    }
+
+    public void remove(Key key) {
+        record(REMOVE, key);
+        map.remove(key);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    // Append the operation, defining the key first if it has not been seen and there is room
+    // for another id, or writing it inline otherwise.
+    private synchronized void record(byte op, Key key) {
+        try {
+            Integer id = ids.get(key);
+            if (id == null) {
+                if (ids.size() >= maxKeys) {
+                    putKey((byte) (op | INLINE), key);
+                    return;
+                }
+                id = ids.size();
+                putKey(DEFINE, key);
+                ids.put(key, id); // only once DEFINE is buffered, so no record uses an undefined id
+            }
+            if (buffer.remaining() < MAX_RECORD_SIZE) flush();
+            buffer.put(op);
+            putVarint(buffer, id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Append op followed by the length and UTF-8 bytes of the key
+    private void putKey(byte op, Key key) throws IOException {
+        byte[] bytes = String.valueOf(key).getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < MAX_RECORD_SIZE + bytes.length) flush();
+        buffer.put(op);
+        putVarint(buffer, bytes.length);
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else { // Key longer than the buffer, so write it straight to the file
+            flush();
+            ByteBuffer b = ByteBuffer.wrap(bytes);
+            while (b.hasRemaining()) channel.write(b);
+        }
+    }
+
+    // Write an int as an unsigned LEB128 varint, 7 bits per byte with a continuation bit
+    private static void putVarint(ByteBuffer b, int v) {
+        while ((v & ~0x7F) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    // Write everything buffered so far to the file.
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // Flush and close the trace file. The wrapped map is left open.
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+}